@@ -1,48 +1,67 @@
 import engine.Beeman;
+import engine.ContactAnalytics;
+import engine.SimulationConfig;
 import engine.Silo;
-import engine.Time;
+import tools.AnalyticsProcessor;
 import tools.ParticleGenerator;
 import tools.PostProcessor;
 
 import java.io.IOException;
-import java.util.Iterator;
 import java.util.Locale;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class Main {
     private static final String W = "W";
     private static final String D = "D";
     private static final String OUT = "out";
-    private static final double SMOOTHING_FACTOR = 100;
+    private static final String CONFIG = "config";
+    private static final String ANALYTICS_OUT = "analyticsOut";
 
     public static void main(String[] args) throws IOException {
         Locale.setDefault(Locale.US);
-        double w = Double.parseDouble(System.getProperty(W));
-        double d = Double.parseDouble(System.getProperty(D));
+        SimulationConfig config = loadConfig();
         String output_file = System.getProperty(OUT);
-        double dt = 0.0001;
-        double height = 0.7;
-        double width = 0.2;
-        double mass = 0.001;
-        double neighborRadius = 0.001;
-        double maxParRadius = 0.011;
-        AtomicInteger i = new AtomicInteger(0);
-        Silo silo = new Silo(
-                width, height, d, w, 0.0015, dt, 250, neighborRadius, maxParRadius
-        );
+        AtomicLong i = new AtomicLong(0);
+        long stepsPerOutput = config.stepsPerOutput();
+        Silo silo = config.siloBuilder().build();
         ParticleGenerator.generate(
-                200, silo::addParticle, height, width, 0.009, maxParRadius
+                config.grainCount(), silo::addParticle, config.height(), config.width(),
+                config.minParRadius(), config.maxParRadius()
         );
-        Beeman integrator = new Beeman(dt, 400, silo, mass);
-        Iterator<Time> timeIt = integrator.beemanEstimation();
-        try (PostProcessor postProcessor = new PostProcessor(output_file)) {
-            timeIt.forEachRemaining(time -> {
-                if (i.getAndIncrement() % (1 / (SMOOTHING_FACTOR * dt)) == 0) {
-                    postProcessor.processSystem(time);
-                    System.out.println(time.time());
+        Beeman integrator = new Beeman(config, silo);
+        try (PostProcessor postProcessor = new PostProcessor(output_file);
+             AnalyticsProcessor analyticsProcessor = config.stepsPerAnalytics() > 0
+                     ? new AnalyticsProcessor(System.getProperty(ANALYTICS_OUT))
+                     : null) {
+            if (analyticsProcessor != null) {
+                silo.setAnalytics(new ContactAnalytics(
+                        config.stepsPerAnalytics(), config.archHeight(), analyticsProcessor
+                ));
+            }
+            integrator.run((time, totalFlow, grains) -> {
+                if (i.getAndIncrement() % stepsPerOutput == 0) {
+                    postProcessor.processSystem(time, totalFlow, grains);
+                    System.out.println(time);
                 }
             });
         }
 
     }
+
+    /**
+     * Reads the file given by -Dconfig if any, -DW and -DD override its frequency and opening.
+     * Fails when neither sets the frequency or the opening, as they have no default.
+     */
+    private static SimulationConfig loadConfig() {
+        String configFile = System.getProperty(CONFIG);
+        Properties properties = configFile != null ? SimulationConfig.readProperties(configFile) : new Properties();
+        if (System.getProperty(W) != null) {
+            properties.setProperty("frequency", System.getProperty(W));
+        }
+        if (System.getProperty(D) != null) {
+            properties.setProperty("opening", System.getProperty(D));
+        }
+        return SimulationConfig.fromProperties(properties);
+    }
 }
@@ -1,6 +1,7 @@
 package engine;
 
 import java.util.Iterator;
+import java.util.function.IntConsumer;
 
 public class Beeman {
     private final Silo silo;
@@ -17,19 +18,41 @@ public class Beeman {
         this.mass = mass;
     }
 
+    public Beeman(SimulationConfig config, Silo silo) {
+        this(config.dt(), config.maxTime(), silo, config.mass());
+    }
+
     public Iterator<Time> beemanEstimation() {
         return new BeemanIterator();
     }
 
+    /**
+     * Runs the whole simulation, calling the observer after every step.
+     * Unlike {@link #beemanEstimation()}, no {@link Time} snapshot is built per step.
+     */
+    public void run(StepObserver observer) {
+        BeemanIterator it = new BeemanIterator();
+        while (it.hasNext()) {
+            it.step();
+            observer.onStep(it.time, silo.totalFlow(), silo.grainView());
+        }
+    }
+
     private class BeemanIterator implements Iterator<Time> {
+        private final IntConsumer predictor = this::predict;
+        private final IntConsumer corrector = this::correct;
         private double time;
         private final double[][] currentSpeed;
         private double[][] prevForceMatrix;
+        private double[][] forceMatrix;
+        private final double[][] nextForceMatrix;
 
         public BeemanIterator() {
             time = 0;
             currentSpeed = new double[silo.grainCount()][Particle.DIMENSION];
             prevForceMatrix = silo.getForceMatrix();
+            forceMatrix = new double[silo.grainCount()][Particle.DIMENSION];
+            nextForceMatrix = new double[silo.grainCount()][Particle.DIMENSION];
         }
 
         @Override
@@ -39,42 +62,57 @@ public class Beeman {
 
         @Override
         public Time next() {
+            step();
+            return new Time(time, silo.grains(), silo.totalFlow());
+        }
+
+        /**
+         * Each force pass runs the update of a grain right after its force, in a single sweep.
+         */
+        private void step() {
             silo.updateBase();
-            double[][] forceMatrix = silo.getForceMatrix();
-            for (Particle p : silo.grains()) {
-                double[] forceArray = forceMatrix[p.getId()];
-                double[] posArray = p.getPos();
-                double[] speedArray = p.getSpeed();
-                double[] newSpeed = new double[Particle.DIMENSION];
-                double[] newPos = new double[Particle.DIMENSION];
-                for (int i = 0; i < Particle.DIMENSION; i++) {
-                    double pos = posArray[i];
-                    double speed = speedArray[i];
-                    currentSpeed[p.getId()][i] = speed;
-                    double force = forceArray[i];
-                    double prevForce = prevForceMatrix[p.getId()][i];
-                    newPos[i] = pos + speed * dt + 2.0 * dts * (force / (3.0 * mass)) - dts * prevForce / (6.0 * mass);
-                    newSpeed[i] = speed + 3.0 * dt * force / (2.0 * mass) - dt * prevForce / (2.0 * mass); // Este es el predictedVel
-                }
-                p.updatePos(newPos);
-                p.updateSpeed(newSpeed);
-            }
-            double[][] nextForceMatrix = silo.getForceMatrix(); // Get the forces using the newPos and newPredSpeed
-            for (Particle p : silo.grains()) {
-                double[] newSpeed = new double[Particle.DIMENSION];
-                double[] nextForceArray = nextForceMatrix[p.getId()];
-                double[] forceArray = forceMatrix[p.getId()];
-                double[] prevForceArray = prevForceMatrix[p.getId()];
-                for (int i = 0; i < Particle.DIMENSION; i++) {
-                    double speed = currentSpeed[p.getId()][i];
-                    double nextSpeed = speed + dt * nextForceArray[i] / (3.0 * mass) + 5.0 * dt * forceArray[i] / (6.0 * mass) - dt * prevForceArray[i] / (6.0 * mass);
-                    newSpeed[i] = nextSpeed;
-                }
-                p.updateSpeed(newSpeed);
-            }
+            silo.computeForces(forceMatrix, predictor);
+            silo.computeForces(nextForceMatrix, corrector); // Get the forces using the newPos and newPredSpeed
             time += dt;
+            // The old previous forces are not needed anymore, reuse them for the next step
+            double[][] oldPrevForceMatrix = prevForceMatrix;
             prevForceMatrix = forceMatrix;
-            return new Time(time, silo.grains(), silo.totalFlow());
+            forceMatrix = oldPrevForceMatrix;
+        }
+
+        private void predict(int k) {
+            Particle p = silo.grains().get(k);
+            double[] forceArray = forceMatrix[k];
+            double[] prevForceArray = prevForceMatrix[k];
+            double[] speedArray = currentSpeed[k];
+            speedArray[0] = p.speedx;
+            speedArray[1] = p.speedy;
+            p.x = predictedPos(p.x, speedArray[0], forceArray[0], prevForceArray[0]);
+            p.y = predictedPos(p.y, speedArray[1], forceArray[1], prevForceArray[1]);
+            p.speedx = predictedSpeed(speedArray[0], forceArray[0], prevForceArray[0]);
+            p.speedy = predictedSpeed(speedArray[1], forceArray[1], prevForceArray[1]);
+        }
+
+        private void correct(int k) {
+            Particle p = silo.grains().get(k);
+            double[] nextForceArray = nextForceMatrix[k];
+            double[] forceArray = forceMatrix[k];
+            double[] prevForceArray = prevForceMatrix[k];
+            double[] speedArray = currentSpeed[k];
+            p.speedx = correctedSpeed(speedArray[0], nextForceArray[0], forceArray[0], prevForceArray[0]);
+            p.speedy = correctedSpeed(speedArray[1], nextForceArray[1], forceArray[1], prevForceArray[1]);
+        }
+
+        private double predictedPos(double pos, double speed, double force, double prevForce) {
+            return pos + speed * dt + 2.0 * dts * (force / (3.0 * mass)) - dts * prevForce / (6.0 * mass);
+        }
+
+        private double predictedSpeed(double speed, double force, double prevForce) {
+            return speed + 3.0 * dt * force / (2.0 * mass) - dt * prevForce / (2.0 * mass); // Este es el predictedVel
+        }
+
+        private double correctedSpeed(double speed, double nextForce, double force, double prevForce) {
+            return speed + dt * nextForce / (3.0 * mass) + 5.0 * dt * force / (6.0 * mass) - dt * prevForce / (6.0 * mass);
         }
     }
 }
@@ -0,0 +1,438 @@
+package engine;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Optional analytics collected by a {@link Silo} during its contact pass, once every {@code sampleEvery} steps.
+ * Grain-grain contacts are stored in primitive buffers that are reused between samples, and from them it computes
+ * coordination numbers, a coarse-grained stress field on the cell grid of the silo and whether an arch spans the opening.
+ * Results are only valid inside {@link SampleObserver#onSample}, the next sample overwrites them.
+ */
+public class ContactAnalytics {
+    @FunctionalInterface
+    public interface SampleObserver {
+        void onSample(double time, ContactAnalytics analytics);
+    }
+
+    private static final int LEFT_ANCHOR = 1;
+    private static final int RIGHT_ANCHOR = 2;
+
+    private final long sampleEvery;
+    private final double archHeight;
+    private final SampleObserver observer;
+    private long step;
+
+    private int contactCount;
+    private int[] firstIndex = new int[256];
+    private int[] secondIndex = new int[256];
+    private int[] firstId = new int[256];
+    private int[] secondId = new int[256];
+    private double[] normalForce = new double[256];
+    private double[] overlap = new double[256];
+
+    // Cell grid of the silo, bound when the analytics is attached
+    private int rows;
+    private int cols;
+    private double hCellLength;
+    private double vCellLength;
+    private double offset;
+    private double leftFloor;
+    private double rightFloor;
+    private double maxParRadius;
+    private double[] stressXX = new double[0];
+    private double[] stressXY = new double[0];
+    private double[] stressYY = new double[0];
+    private double[] pressure = new double[0];
+
+    private int[] coordination = new int[0];
+    private int[] adjacencyStart = new int[1];
+    private int[] adjacency = new int[0];
+    private int[] queue = new int[0];
+    private int[] visited = new int[0];
+    private int visitStamp;
+    private int[] region = new int[0];
+    private int[] added = new int[0];
+    private int[] parent = new int[0];
+    private int[] anchors = new int[0];
+    private int[] previous = new int[0];
+    private int[] onChain = new int[0];
+    private int[] chain = new int[0];
+    private double meanCoordination;
+    private boolean arch;
+    private int archGrainCount;
+
+    public ContactAnalytics(long sampleEvery, double archHeight, SampleObserver observer) {
+        if (sampleEvery <= 0) {
+            throw new IllegalArgumentException("sampleEvery must be positive");
+        }
+        this.sampleEvery = sampleEvery;
+        this.archHeight = archHeight;
+        this.observer = observer;
+    }
+
+    void bind(int rows, int cols, double hCellLength, double vCellLength, double offset,
+              double leftFloor, double rightFloor, double maxParRadius) {
+        this.rows = rows;
+        this.cols = cols;
+        this.hCellLength = hCellLength;
+        this.vCellLength = vCellLength;
+        this.offset = offset;
+        this.leftFloor = leftFloor;
+        this.rightFloor = rightFloor;
+        this.maxParRadius = maxParRadius;
+        stressXX = new double[rows * cols];
+        stressXY = new double[rows * cols];
+        stressYY = new double[rows * cols];
+        pressure = new double[rows * cols];
+    }
+
+    /**
+     * Called once per step, returns whether the contacts of this step must be recorded.
+     */
+    boolean beginStep() {
+        if (step++ % sampleEvery != 0) {
+            return false;
+        }
+        contactCount = 0;
+        Arrays.fill(stressXX, 0);
+        Arrays.fill(stressXY, 0);
+        Arrays.fill(stressYY, 0);
+        return true;
+    }
+
+    /**
+     * Records the contact between p and p2, where fnet is the force p2 exerts on p.
+     * Pairs that do not overlap are ignored.
+     */
+    void record(Particle p, Particle p2, double[] fnet) {
+        double dx = p2.x - p.x;
+        double dy = p2.y - p.y;
+        double dr = Math.sqrt(dx * dx + dy * dy);
+        double xi = p.radius + p2.radius - dr;
+        if (xi <= 0) {
+            return;
+        }
+        ensureContactCapacity(contactCount + 1);
+        double enx = dx / dr;
+        double eny = dy / dr;
+        firstIndex[contactCount] = p.index;
+        secondIndex[contactCount] = p2.index;
+        firstId[contactCount] = p.getId();
+        secondId[contactCount] = p2.getId();
+        normalForce[contactCount] = -(fnet[0] * enx + fnet[1] * eny);
+        overlap[contactCount] = xi;
+        contactCount++;
+
+        // Love-Weber stress, compression positive, assigned to the cell of the contact point
+        double cx = p.x + (p.radius - xi / 2) * enx;
+        double cy = p.y + (p.radius - xi / 2) * eny;
+        int col = (int) (cx / hCellLength);
+        int row = (int) ((cy + offset) / vCellLength);
+        if (col < 0 || col >= cols || row < 0 || row >= rows) {
+            return;
+        }
+        int cell = col + cols * row;
+        stressXX[cell] -= fnet[0] * dx;
+        stressXY[cell] -= (fnet[0] * dy + fnet[1] * dx) / 2;
+        stressYY[cell] -= fnet[1] * dy;
+    }
+
+    void finishSample(double time, List<Particle> grains, double ys) {
+        int grainCount = grains.size();
+        ensureGrainCapacity(grainCount);
+        computeStress();
+        computeCoordination(grainCount);
+        detectArch(grains, ys);
+        if (observer != null) {
+            observer.onSample(time, this);
+        }
+    }
+
+    private void computeStress() {
+        double cellArea = hCellLength * vCellLength;
+        for (int cell = 0; cell < pressure.length; cell++) {
+            stressXX[cell] /= cellArea;
+            stressXY[cell] /= cellArea;
+            stressYY[cell] /= cellArea;
+            pressure[cell] = (stressXX[cell] + stressYY[cell]) / 2;
+        }
+    }
+
+    /**
+     * Counts contacts per grain and lays them out as an adjacency list for the arch search.
+     */
+    private void computeCoordination(int grainCount) {
+        Arrays.fill(coordination, 0, grainCount, 0);
+        for (int c = 0; c < contactCount; c++) {
+            coordination[firstIndex[c]]++;
+            coordination[secondIndex[c]]++;
+        }
+        adjacencyStart[0] = 0;
+        for (int i = 0; i < grainCount; i++) {
+            adjacencyStart[i + 1] = adjacencyStart[i] + coordination[i];
+        }
+        if (adjacency.length < 2 * contactCount) {
+            adjacency = new int[4 * contactCount];
+        }
+        // queue doubles as the fill cursor of each grain before the search uses it
+        System.arraycopy(adjacencyStart, 0, queue, 0, grainCount);
+        for (int c = 0; c < contactCount; c++) {
+            adjacency[queue[firstIndex[c]]++] = secondIndex[c];
+            adjacency[queue[secondIndex[c]]++] = firstIndex[c];
+        }
+        meanCoordination = grainCount == 0 ? 0 : 2.0 * contactCount / grainCount;
+    }
+
+    /**
+     * An arch is the lowest chain of touching grains above the opening that links a grain resting on the
+     * left edge of the opening with one resting on the right edge, with no grain below it inside the opening.
+     * A chain with grains still passing under it is only part of the flowing bulk, not a blocking arch.
+     */
+    private void detectArch(List<Particle> grains, double ys) {
+        arch = false;
+        archGrainCount = 0;
+        visitStamp++;
+        int regionCount = 0;
+        for (int i = 0; i < grains.size(); i++) {
+            if (inArchRegion(grains.get(i), ys)) {
+                region[regionCount++] = i;
+            }
+        }
+        sortByHeight(grains, regionCount);
+
+        // Adding grains from the bottom up, the first one that joins both edges closes the lowest crossing
+        boolean spanning = false;
+        for (int r = 0; r < regionCount && !spanning; r++) {
+            int i = region[r];
+            added[i] = visitStamp;
+            parent[i] = i;
+            anchors[i] = anchorSide(grains.get(i), ys);
+            for (int k = adjacencyStart[i]; k < adjacencyStart[i + 1]; k++) {
+                if (added[adjacency[k]] == visitStamp) {
+                    union(i, adjacency[k]);
+                }
+            }
+            spanning = anchors[find(i)] == (LEFT_ANCHOR | RIGHT_ANCHOR);
+        }
+        if (!spanning) {
+            return;
+        }
+
+        int chainLength = 0;
+        for (int i = shortestChainEnd(grains, ys); i >= 0; i = previous[i]) {
+            onChain[i] = visitStamp;
+            chain[chainLength++] = i;
+        }
+        if (openingClearBelowChain(grains, ys, chainLength)) {
+            arch = true;
+            archGrainCount = chainLength;
+        }
+    }
+
+    /**
+     * Breadth first search among the grains below the lowest crossing, from the left edge to the right edge.
+     * Returns the right edge grain reached, previous links it back to the left edge.
+     */
+    private int shortestChainEnd(List<Particle> grains, double ys) {
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < grains.size(); i++) {
+            if (added[i] == visitStamp && (anchorSide(grains.get(i), ys) & LEFT_ANCHOR) != 0) {
+                visited[i] = visitStamp;
+                previous[i] = -1;
+                queue[tail++] = i;
+            }
+        }
+        while (head < tail) {
+            int i = queue[head++];
+            if ((anchorSide(grains.get(i), ys) & RIGHT_ANCHOR) != 0) {
+                return i;
+            }
+            for (int k = adjacencyStart[i]; k < adjacencyStart[i + 1]; k++) {
+                int j = adjacency[k];
+                if (added[j] == visitStamp && visited[j] != visitStamp) {
+                    visited[j] = visitStamp;
+                    previous[j] = i;
+                    queue[tail++] = j;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Whether no grain inside the opening is lower than the chain grain closest to it horizontally.
+     */
+    private boolean openingClearBelowChain(List<Particle> grains, double ys, int chainLength) {
+        for (int i = 0; i < grains.size(); i++) {
+            Particle p = grains.get(i);
+            if (onChain[i] == visitStamp || p.x <= leftFloor || p.x >= rightFloor || p.y <= ys - archHeight) {
+                continue;
+            }
+            Particle closest = grains.get(chain[0]);
+            for (int c = 1; c < chainLength; c++) {
+                Particle q = grains.get(chain[c]);
+                if (Math.abs(q.x - p.x) < Math.abs(closest.x - p.x)) {
+                    closest = q;
+                }
+            }
+            if (p.y < closest.y) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int anchorSide(Particle p, double ys) {
+        if (p.y - p.radius - ys > maxParRadius) {
+            return 0;
+        }
+        int side = 0;
+        if (p.x - p.radius <= leftFloor) {
+            side |= LEFT_ANCHOR;
+        }
+        if (p.x + p.radius >= rightFloor) {
+            side |= RIGHT_ANCHOR;
+        }
+        return side;
+    }
+
+    private int find(int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private void union(int i, int j) {
+        int ri = find(i);
+        int rj = find(j);
+        if (ri != rj) {
+            parent[rj] = ri;
+            anchors[ri] |= anchors[rj];
+        }
+    }
+
+    /**
+     * Insertion sort of the first count region grains by height, the region above the opening is small.
+     */
+    private void sortByHeight(List<Particle> grains, int count) {
+        for (int r = 1; r < count; r++) {
+            int i = region[r];
+            double y = grains.get(i).y;
+            int s = r - 1;
+            while (s >= 0 && grains.get(region[s]).y > y) {
+                region[s + 1] = region[s];
+                s--;
+            }
+            region[s + 1] = i;
+        }
+    }
+
+    private boolean inArchRegion(Particle p, double ys) {
+        return p.x >= leftFloor - 2 * maxParRadius && p.x <= rightFloor + 2 * maxParRadius
+                && p.y >= ys && p.y - ys <= archHeight;
+    }
+
+    private void ensureContactCapacity(int capacity) {
+        if (capacity <= firstIndex.length) {
+            return;
+        }
+        int newLength = Math.max(capacity, 2 * firstIndex.length);
+        firstIndex = Arrays.copyOf(firstIndex, newLength);
+        secondIndex = Arrays.copyOf(secondIndex, newLength);
+        firstId = Arrays.copyOf(firstId, newLength);
+        secondId = Arrays.copyOf(secondId, newLength);
+        normalForce = Arrays.copyOf(normalForce, newLength);
+        overlap = Arrays.copyOf(overlap, newLength);
+    }
+
+    private void ensureGrainCapacity(int grainCount) {
+        if (coordination.length >= grainCount) {
+            return;
+        }
+        coordination = new int[grainCount];
+        adjacencyStart = new int[grainCount + 1];
+        queue = new int[grainCount];
+        visited = new int[grainCount];
+        region = new int[grainCount];
+        added = new int[grainCount];
+        parent = new int[grainCount];
+        anchors = new int[grainCount];
+        previous = new int[grainCount];
+        onChain = new int[grainCount];
+        chain = new int[grainCount];
+        visitStamp = 0;
+    }
+
+    public int contactCount() {
+        return contactCount;
+    }
+
+    public int firstId(int contact) {
+        return firstId[contact];
+    }
+
+    public int secondId(int contact) {
+        return secondId[contact];
+    }
+
+    public double normalForce(int contact) {
+        return normalForce[contact];
+    }
+
+    public double overlap(int contact) {
+        return overlap[contact];
+    }
+
+    /**
+     * Number of contacts of the grain at the given position of {@link Silo#grains()}.
+     */
+    public int coordination(int grain) {
+        return coordination[grain];
+    }
+
+    public double meanCoordination() {
+        return meanCoordination;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int cols() {
+        return cols;
+    }
+
+    /**
+     * Cells are indexed as in the silo grid, col + cols * row, with row 0 at the bottom.
+     */
+    public double stressXX(int cell) {
+        return stressXX[cell];
+    }
+
+    public double stressXY(int cell) {
+        return stressXY[cell];
+    }
+
+    public double stressYY(int cell) {
+        return stressYY[cell];
+    }
+
+    public double pressure(int cell) {
+        return pressure[cell];
+    }
+
+    public boolean hasArch() {
+        return arch;
+    }
+
+    /**
+     * Number of grains on the arch chain, 0 when there is no arch.
+     */
+    public int archGrainCount() {
+        return archGrainCount;
+    }
+}
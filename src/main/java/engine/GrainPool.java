@@ -0,0 +1,118 @@
+package engine;
+
+import java.util.concurrent.Phaser;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed set of worker threads that split a [0, count) range of grains in contiguous chunks.
+ * The caller thread works on the first chunk and returns once every chunk is done,
+ * so tasks may freely read what previous passes wrote.
+ * Tasks are meant to be created once and reused, so a pass allocates nothing.
+ */
+final class GrainPool {
+    private static final GrainPool SHARED = new GrainPool(Runtime.getRuntime().availableProcessors());
+
+    // Chunk sizes aim for about 50us of work, well above the cost of waking a parked worker.
+    // The fallen grain scan takes about 1.5ns per grain, wall and floor forces fused with a Beeman update about 35ns.
+    static final int LIGHT_PASS_CHUNK = 32768;
+    static final int FORCE_PASS_CHUNK = 2048;
+
+    @FunctionalInterface
+    interface RangeTask {
+        void run(int from, int to);
+    }
+
+    private final int parallelism;
+    private final Phaser phaser;
+    private final ReentrantLock handOff = new ReentrantLock();
+    private RangeTask task;
+    private int count;
+    private int chunks;
+    private volatile Throwable failure;
+
+    private GrainPool(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+        this.phaser = new Phaser(this.parallelism);
+        for (int k = 1; k < this.parallelism; k++) {
+            int chunk = k;
+            Thread worker = new Thread(() -> work(chunk), "grain-pool-" + k);
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    static GrainPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * Runs the task over [0, count) in chunks of at least minChunk grains, inline when there is only one.
+     * Handing a chunk to a worker costs a couple of barrier crossings, tens of microseconds when the
+     * worker has to be unparked, so minChunk should hold at least that much work.
+     * The pool is shared by every silo in the JVM: when another simulation is using the workers,
+     * or a task starts a nested pass, the range runs inline instead of waiting for them.
+     */
+    void forEach(int count, int minChunk, RangeTask task) {
+        int chunks = Math.min(parallelism, count / minChunk);
+        if (chunks <= 1 || handOff.isHeldByCurrentThread() || !handOff.tryLock()) {
+            task.run(0, count);
+            return;
+        }
+        try {
+            runOnWorkers(count, chunks, task);
+        } finally {
+            handOff.unlock();
+        }
+    }
+
+    private void runOnWorkers(int count, int chunks, RangeTask task) {
+        this.task = task;
+        this.count = count;
+        this.chunks = chunks;
+        phaser.arriveAndAwaitAdvance(); // release workers
+        Throwable t = null;
+        try {
+            runChunk(0);
+        } catch (Throwable e) {
+            t = e;
+        } finally {
+            // Always wait for the workers, otherwise they would stay one phase behind for every later pass
+            phaser.arriveAndAwaitAdvance();
+            this.task = null;
+        }
+        if (t == null) {
+            t = failure;
+        }
+        failure = null;
+        if (t instanceof RuntimeException e) {
+            throw e;
+        }
+        if (t instanceof Error e) {
+            throw e;
+        }
+        if (t != null) {
+            throw new RuntimeException("Error on parallel grain pass", t);
+        }
+    }
+
+    private void work(int chunk) {
+        while (true) {
+            phaser.arriveAndAwaitAdvance();
+            try {
+                runChunk(chunk);
+            } catch (Throwable t) {
+                failure = t;
+            }
+            phaser.arriveAndAwaitAdvance();
+        }
+    }
+
+    private void runChunk(int chunk) {
+        if (chunk >= chunks) {
+            return;
+        }
+        int from = (int) ((long) count * chunk / chunks);
+        int to = (int) ((long) count * (chunk + 1) / chunks);
+        task.run(from, to);
+    }
+}
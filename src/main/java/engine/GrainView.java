@@ -0,0 +1,21 @@
+package engine;
+
+/**
+ * Read-only view of the grains of a silo, indexed from 0 to {@link #count()} - 1.
+ * Values are read straight from the grains, so they are only valid during the step they are read on.
+ */
+public interface GrainView {
+    int count();
+
+    int id(int i);
+
+    double x(int i);
+
+    double y(int i);
+
+    double speedX(int i);
+
+    double speedY(int i);
+
+    double radius(int i);
+}
@@ -2,19 +2,22 @@ package engine;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Particle {
     public static final int DIMENSION = 2;
-    private static int globalId = 0;
+    private static final AtomicInteger globalId = new AtomicInteger();
     private final int id;
     double x;
     double y;
     double speedx = 0, speedy = 0;
     final double radius;
     final double[] contactForce = {0.0, 0.0};
+    // Position in the grains of the silo it was added to
+    int index = -1;
 
     public Particle(double x, double y, double radius) {
-        this(x, y, radius, globalId++);
+        this(x, y, radius, globalId.getAndIncrement());
     }
 
     public Particle(double x, double y, double radius, int id) {
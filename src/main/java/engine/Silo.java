@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
+import java.util.function.IntConsumer;
 
 public class Silo {
     private final double width;
@@ -31,6 +32,18 @@ public class Silo {
     private final double hCellLength;
     private final List<List<Particle>> grid;
     private final double maxParRadius;
+    private final double leftFloor;
+    private final double rightFloor;
+
+    private final GrainPool pool = GrainPool.shared();
+    private final GrainPool.RangeTask fallenScan = this::markFallen;
+    private final GrainPool.RangeTask boundaryPass = this::applyBoundaryForces;
+    private boolean[] fallen = new boolean[0];
+    private double[][] targetForceMatrix;
+    private IntConsumer afterBoundaryForces;
+    private final GrainView grainView = new SiloGrainView();
+    private ContactAnalytics analytics;
+    private boolean recordContacts;
 
     public Silo(double width, double height, double opening, double frequency, double amplitude, double dt, double kn, double neighborRadius, double maxParRadius) {
         this.width = width;
@@ -45,6 +58,8 @@ public class Silo {
         this.kn = kn;
         this.leftBoundaryParticle = new FixedBaseParticle((width - opening) / 2, 0);
         this.rightBoundaryParticle = new FixedBaseParticle(width - (width - opening) / 2, 0);
+        this.leftFloor = (width - opening) / 2;
+        this.rightFloor = width - (width - opening) / 2;
 
         this.maxParRadius = maxParRadius;
         this.M = (int) Math.round(Math.ceil((height + offset) / (neighborRadius + 2 * maxParRadius) - 1));
@@ -60,11 +75,16 @@ public class Silo {
         }
     }
 
+    public static Builder builder() {
+        return new Builder();
+    }
+
     /**
      * Particles on horizontal cell borders go to the upper cell,
      * and particles on vertical cell borders go to the right cell.
      */
     public void addParticle(Particle particle) {
+        particle.index = grains.size();
         addParticleToGrid(particle);
         grains.add(particle);
     }
@@ -98,32 +118,46 @@ public class Silo {
         leftBoundaryParticle.updatePos(ys);
         rightBoundaryParticle.updatePos(ys);
         resetGrid();
-        for (Particle p : grains) {
-            if (p.y - ys <= -height / 10) {
-                boolean overlap = true;
-                while (overlap) {
-                    overlap = false;
-                    p.y = baseRandom.nextDouble() * 0.3 + 0.4;
-                    p.x = baseRandom.nextDouble() * (width - 2 * maxParRadius) + maxParRadius;
-                    int i = (int) (p.x / hCellLength) + N * (int) ((p.y + offset) / vCellLength);
-                    List<Particle> neighbors = getAllDirectionNeighbors(i);
-                    for (Particle p2 : neighbors) {
-                        double dx = p2.x - p.x;
-                        double dy = p2.y - p.y;
-                        double dr = Math.sqrt(dx * dx + dy * dy);
-                        double xi = p.radius + p2.radius - dr;
-                        if (xi > 0) {
-                            overlap = true;
-                            break;
-                        }
+        if (fallen.length != grains.size()) {
+            fallen = new boolean[grains.size()];
+        }
+        pool.forEach(grains.size(), GrainPool.LIGHT_PASS_CHUNK, fallenScan);
+        // Reinjection stays sequential: it shares the random generator and is rare.
+        for (int k = 0; k < fallen.length; k++) {
+            if (!fallen[k]) {
+                continue;
+            }
+            fallen[k] = false;
+            Particle p = grains.get(k);
+            boolean overlap = true;
+            while (overlap) {
+                overlap = false;
+                p.y = baseRandom.nextDouble() * 0.3 + 0.4;
+                p.x = baseRandom.nextDouble() * (width - 2 * maxParRadius) + maxParRadius;
+                int i = (int) (p.x / hCellLength) + N * (int) ((p.y + offset) / vCellLength);
+                List<Particle> neighbors = getAllDirectionNeighbors(i);
+                for (Particle p2 : neighbors) {
+                    double dx = p2.x - p.x;
+                    double dy = p2.y - p.y;
+                    double dr = Math.sqrt(dx * dx + dy * dy);
+                    double xi = p.radius + p2.radius - dr;
+                    if (xi > 0) {
+                        overlap = true;
+                        break;
                     }
                 }
-                p.speedx = 0;
-                p.speedy = 0;
-                totalFlow++;
             }
+            p.speedx = 0;
+            p.speedy = 0;
+            totalFlow++;
         }
+        recordContacts = analytics != null && analytics.beginStep();
+    }
 
+    private void markFallen(int from, int to) {
+        for (int k = from; k < to; k++) {
+            fallen[k] = grains.get(k).y - ys <= -height / 10;
+        }
     }
 
     public int grainCount() {
@@ -138,6 +172,20 @@ public class Silo {
         return grains;
     }
 
+    public GrainView grainView() {
+        return grainView;
+    }
+
+    /**
+     * Contacts are sampled on the first force pass after each {@link #updateBase()}.
+     */
+    public void setAnalytics(ContactAnalytics analytics) {
+        this.analytics = analytics;
+        if (analytics != null) {
+            analytics.bind(M, N, hCellLength, vCellLength, offset, leftFloor, rightFloor, maxParRadius);
+        }
+    }
+
     private double dotProduct(double[] a, double[] b) {
         return a[0] * b[0] + a[1] * b[1];
     }
@@ -186,6 +234,9 @@ public class Silo {
 
                         neighbor.contactForce[X] -= fnet[X];
                         neighbor.contactForce[Y] -= fnet[Y];
+                        if (recordContacts) {
+                            analytics.record(particle, neighbor, fnet);
+                        }
                     }
                 }
                 for (Particle neighbor : getCurrentCellParticles(i, particle)) {
@@ -193,6 +244,10 @@ public class Silo {
                         fnet = getParticleInteractionForce(particle, neighbor);
                         particle.contactForce[X] += fnet[X];
                         particle.contactForce[Y] += fnet[Y];
+                        // Pairs in the same cell are visited twice, record them once
+                        if (recordContacts && particle.index < neighbor.index) {
+                            analytics.record(particle, neighbor, fnet);
+                        }
                     }
                 }
             }
@@ -201,12 +256,39 @@ public class Silo {
 
     public double[][] getForceMatrix() {
         double[][] forceMatrix = new double[grains().size()][Particle.DIMENSION];
-        double leftFloor = (width - opening) / 2;
-        double rightFloor = width - (width - opening) / 2;
+        computeForces(forceMatrix, null);
+        return forceMatrix;
+    }
+
+    /**
+     * Writes the net force of every grain into its row of forceMatrix, then hands the grain index to
+     * perGrain in the same sweep. perGrain may only touch that grain, since other grains can still be
+     * getting their forces on another thread.
+     */
+    void computeForces(double[][] forceMatrix, IntConsumer perGrain) {
         resetGrid();
         performCellIndexMethod();
-        for (Particle p : grains) {
-            double[] forceArray = {0, -9.8 / 1000};
+        if (recordContacts) {
+            recordContacts = false;
+            analytics.finishSample(currentTime, grains, ys);
+        }
+        targetForceMatrix = forceMatrix;
+        afterBoundaryForces = perGrain;
+        pool.forEach(grains.size(), GrainPool.FORCE_PASS_CHUNK, boundaryPass);
+        targetForceMatrix = null;
+        afterBoundaryForces = null;
+    }
+
+    /**
+     * Adds gravity, walls and floor to the contact force of each grain in range.
+     * Every grain only writes its own row, so ranges can run concurrently.
+     */
+    private void applyBoundaryForces(int from, int to) {
+        for (int k = from; k < to; k++) {
+            Particle p = grains.get(k);
+            double[] forceArray = targetForceMatrix[k];
+            forceArray[X] = 0;
+            forceArray[Y] = -9.8 / 1000;
             // Interaction Between Particles
             forceArray[X] += p.contactForce[X];
             forceArray[Y] += p.contactForce[Y];
@@ -250,9 +332,10 @@ public class Silo {
                 }
 
             }
-            forceMatrix[p.getId()] = forceArray;
+            if (afterBoundaryForces != null) {
+                afterBoundaryForces.accept(k);
+            }
         }
-        return forceMatrix;
     }
 
     private List<Particle> getAboveAndRightAdjacentParticles(int cellIndex) {
@@ -310,4 +393,111 @@ public class Silo {
         toReturn.remove(p);
         return toReturn;
     }
+
+    private class SiloGrainView implements GrainView {
+        @Override
+        public int count() {
+            return grains.size();
+        }
+
+        @Override
+        public int id(int i) {
+            return grains.get(i).getId();
+        }
+
+        @Override
+        public double x(int i) {
+            return grains.get(i).x;
+        }
+
+        @Override
+        public double y(int i) {
+            return grains.get(i).y;
+        }
+
+        @Override
+        public double speedX(int i) {
+            return grains.get(i).speedx;
+        }
+
+        @Override
+        public double speedY(int i) {
+            return grains.get(i).speedy;
+        }
+
+        @Override
+        public double radius(int i) {
+            return grains.get(i).radius;
+        }
+    }
+
+    /**
+     * Starts from {@link SimulationConfig#DEFAULT}, opening and frequency have no default and must be set.
+     */
+    public static class Builder {
+        private double width = SimulationConfig.DEFAULT.width();
+        private double height = SimulationConfig.DEFAULT.height();
+        private double opening = Double.NaN;
+        private double frequency = Double.NaN;
+        private double amplitude = SimulationConfig.DEFAULT.amplitude();
+        private double dt = SimulationConfig.DEFAULT.dt();
+        private double kn = SimulationConfig.DEFAULT.kn();
+        private double neighborRadius = SimulationConfig.DEFAULT.neighborRadius();
+        private double maxParRadius = SimulationConfig.DEFAULT.maxParRadius();
+
+        private Builder() {
+        }
+
+        public Builder width(double width) {
+            this.width = width;
+            return this;
+        }
+
+        public Builder height(double height) {
+            this.height = height;
+            return this;
+        }
+
+        public Builder opening(double opening) {
+            this.opening = opening;
+            return this;
+        }
+
+        public Builder frequency(double frequency) {
+            this.frequency = frequency;
+            return this;
+        }
+
+        public Builder amplitude(double amplitude) {
+            this.amplitude = amplitude;
+            return this;
+        }
+
+        public Builder dt(double dt) {
+            this.dt = dt;
+            return this;
+        }
+
+        public Builder kn(double kn) {
+            this.kn = kn;
+            return this;
+        }
+
+        public Builder neighborRadius(double neighborRadius) {
+            this.neighborRadius = neighborRadius;
+            return this;
+        }
+
+        public Builder maxParRadius(double maxParRadius) {
+            this.maxParRadius = maxParRadius;
+            return this;
+        }
+
+        public Silo build() {
+            if (Double.isNaN(opening) || Double.isNaN(frequency)) {
+                throw new IllegalStateException("Silo opening and frequency must be set");
+            }
+            return new Silo(width, height, opening, frequency, amplitude, dt, kn, neighborRadius, maxParRadius);
+        }
+    }
 }
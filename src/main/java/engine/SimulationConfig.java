@@ -0,0 +1,179 @@
+package engine;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.RecordComponent;
+import java.util.Properties;
+
+/**
+ * Run parameters of a silo simulation.
+ * Can be read from a properties file where every key matches a component name,
+ * missing keys keep the value of {@link #DEFAULT}. An analyticsRate of 0 disables {@link ContactAnalytics}.
+ * There is no default opening nor frequency, both must always be given.
+ * Unknown keys and non positive sizes, rates or steps are rejected.
+ */
+public record SimulationConfig(
+        double dt,
+        double maxTime,
+        double width,
+        double height,
+        double opening,
+        double frequency,
+        double amplitude,
+        double kn,
+        double mass,
+        int grainCount,
+        double minParRadius,
+        double maxParRadius,
+        double neighborRadius,
+        double outputRate,
+        double analyticsRate,
+        double archHeight
+) {
+    public static final SimulationConfig DEFAULT = new SimulationConfig(
+            0.0001, 400, 0.2, 0.7, Double.NaN, Double.NaN, 0.0015, 250, 0.001, 200, 0.009, 0.011, 0.001, 100, 0, 0.06
+    );
+
+    public static SimulationConfig load(String path) {
+        return fromProperties(readProperties(path));
+    }
+
+    public static Properties readProperties(String path) {
+        Properties properties = new Properties();
+        try (Reader reader = new FileReader(path)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading config file " + path);
+        }
+        return properties;
+    }
+
+    public static SimulationConfig fromProperties(Properties properties) {
+        checkKeys(properties);
+        SimulationConfig d = DEFAULT;
+        SimulationConfig config = new SimulationConfig(
+                getDouble(properties, "dt", d.dt),
+                getDouble(properties, "maxTime", d.maxTime),
+                getDouble(properties, "width", d.width),
+                getDouble(properties, "height", d.height),
+                getRequiredDouble(properties, "opening"),
+                getRequiredDouble(properties, "frequency"),
+                getDouble(properties, "amplitude", d.amplitude),
+                getDouble(properties, "kn", d.kn),
+                getDouble(properties, "mass", d.mass),
+                getInt(properties, "grainCount", d.grainCount),
+                getDouble(properties, "minParRadius", d.minParRadius),
+                getDouble(properties, "maxParRadius", d.maxParRadius),
+                getDouble(properties, "neighborRadius", d.neighborRadius),
+                getDouble(properties, "outputRate", d.outputRate),
+                getDouble(properties, "analyticsRate", d.analyticsRate),
+                getDouble(properties, "archHeight", d.archHeight)
+        );
+        config.validate();
+        return config;
+    }
+
+    private static void checkKeys(Properties properties) {
+        for (String key : properties.stringPropertyNames()) {
+            boolean known = false;
+            for (RecordComponent component : SimulationConfig.class.getRecordComponents()) {
+                known |= component.getName().equals(key);
+            }
+            if (!known) {
+                throw new RuntimeException("Unknown config key " + key);
+            }
+        }
+    }
+
+    private void validate() {
+        requirePositive("dt", dt);
+        requirePositive("maxTime", maxTime);
+        requirePositive("width", width);
+        requirePositive("height", height);
+        requirePositive("opening", opening);
+        requirePositive("frequency", frequency);
+        requirePositive("kn", kn);
+        requirePositive("mass", mass);
+        requirePositive("grainCount", grainCount);
+        requirePositive("minParRadius", minParRadius);
+        requirePositive("maxParRadius", maxParRadius);
+        requirePositive("neighborRadius", neighborRadius);
+        requirePositive("outputRate", outputRate);
+        requirePositive("archHeight", archHeight);
+        if (amplitude < 0 || analyticsRate < 0) {
+            throw new RuntimeException("amplitude and analyticsRate can not be negative");
+        }
+        if (opening >= width) {
+            throw new RuntimeException("opening must be smaller than width");
+        }
+        if (minParRadius > maxParRadius) {
+            throw new RuntimeException("minParRadius can not be greater than maxParRadius");
+        }
+    }
+
+    private static void requirePositive(String key, double value) {
+        // Also rejects NaN
+        if (!(value > 0)) {
+            throw new RuntimeException("Invalid value for " + key + ": " + value + ", it must be positive");
+        }
+    }
+
+    private static double getRequiredDouble(Properties properties, String key) {
+        if (properties.getProperty(key) == null) {
+            throw new RuntimeException("Missing value for " + key);
+        }
+        return getDouble(properties, key, Double.NaN);
+    }
+
+    private static int getInt(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Invalid value for " + key + ": " + value);
+        }
+    }
+
+    private static double getDouble(Properties properties, String key, double defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Invalid value for " + key + ": " + value);
+        }
+    }
+
+    /**
+     * Steps between two output frames, given the output rate in frames per simulated second.
+     */
+    public long stepsPerOutput() {
+        return Math.max(1, Math.round(1 / (outputRate * dt)));
+    }
+
+    /**
+     * Steps between two contact analytics samples, analytics are disabled when analyticsRate is not positive.
+     */
+    public long stepsPerAnalytics() {
+        return analyticsRate > 0 ? Math.max(1, Math.round(1 / (analyticsRate * dt))) : 0;
+    }
+
+    public Silo.Builder siloBuilder() {
+        return Silo.builder()
+                .width(width)
+                .height(height)
+                .opening(opening)
+                .frequency(frequency)
+                .amplitude(amplitude)
+                .dt(dt)
+                .kn(kn)
+                .neighborRadius(neighborRadius)
+                .maxParRadius(maxParRadius);
+    }
+}
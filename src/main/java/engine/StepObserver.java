@@ -0,0 +1,6 @@
+package engine;
+
+@FunctionalInterface
+public interface StepObserver {
+    void onStep(double time, long totalFlow, GrainView grains);
+}
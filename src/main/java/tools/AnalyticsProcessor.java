@@ -0,0 +1,54 @@
+package tools;
+
+import engine.ContactAnalytics;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Locale;
+
+public class AnalyticsProcessor implements Closeable, ContactAnalytics.SampleObserver {
+    private static final String OUTPUT_FILE_NAME = "analytics.txt";
+    private final BufferedWriter writer;
+
+
+    public AnalyticsProcessor(String outputName) {
+        Locale.setDefault(Locale.US);
+        try {
+            if (outputName == null)
+                outputName = OUTPUT_FILE_NAME;
+            writer = new BufferedWriter(new FileWriter(outputName));
+        } catch (IOException e) {
+            throw new RuntimeException("Error opening file");
+        }
+    }
+
+    /**
+     * Writes "time - contacts meanCoordination arch archGrains" followed by the pressure of every cell.
+     */
+    @Override
+    public void onSample(double time, ContactAnalytics analytics) {
+        try {
+            writer.write("%.4f - %d %.4f %b %d".formatted(
+                    time, analytics.contactCount(), analytics.meanCoordination(),
+                    analytics.hasArch(), analytics.archGrainCount()
+            ));
+            writer.newLine();
+            int cells = analytics.rows() * analytics.cols();
+            for (int cell = 0; cell < cells; cell++) {
+                if (cell > 0)
+                    writer.write(',');
+                writer.write("%.6e".formatted(analytics.pressure(cell)));
+            }
+            writer.newLine();
+        } catch (IOException e) {
+            throw new RuntimeException("Error writing on output file");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -1,6 +1,7 @@
 package tools;
 
 
+import engine.GrainView;
 import engine.Particle;
 import engine.Time;
 
@@ -48,6 +49,21 @@ public class PostProcessor implements Closeable {
         }
     }
 
+    public void processSystem(double time, long totalFlow, GrainView grains) {
+        try {
+            writer.write("%.4f - %d".formatted(time, totalFlow));
+            writer.newLine();
+            for (int i = 0; i < grains.count(); i++) {
+                writer.write("%.8f,%.8f,%.8f,%.8f,%.8f".formatted(
+                        grains.x(i), grains.y(i), grains.speedX(i), grains.speedY(i), grains.radius(i)
+                ));
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error writing on output file");
+        }
+    }
+
     @Override
     public void close() throws IOException {
         writer.close();